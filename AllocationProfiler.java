@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+public class AllocationProfiler {
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 200;
+    private static final int LONG_INPUT_REPEATS = 100;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    // Bytes allocated by the current thread while running task.
+    public static long allocatedBytes(Runnable task) {
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        task.run();
+        return THREADS.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    public static double bytesPerExecution(Function<String, String> executor, String input) {
+        warmUp(executor, input);
+        return measure(executor, input);
+    }
+
+    // Allocation growth per input symbol: the difference between a long and a short run of
+    // the same pattern, so fixed per-call costs (result strings, arrays) cancel out. Both
+    // inputs are warmed up before either is measured, so both runs use the same compiled code.
+    public static double bytesPerSymbol(Function<String, String> executor, String pattern) {
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Input pattern must not be empty");
+        }
+        String longInput = pattern.repeat(LONG_INPUT_REPEATS);
+        warmUp(executor, pattern);
+        warmUp(executor, longInput);
+        double shortBytes = measure(executor, pattern);
+        double longBytes = measure(executor, longInput);
+        return (longBytes - shortBytes) / (longInput.length() - pattern.length());
+    }
+
+    private static void warmUp(Function<String, String> executor, String input) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            executor.apply(input);
+        }
+    }
+
+    private static double measure(Function<String, String> executor, String input) {
+        long bytes = allocatedBytes(() -> {
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                executor.apply(input);
+            }
+        });
+        return (double) bytes / MEASURED_ITERATIONS;
+    }
+
+    public static double bytesPerLoadedTransition(String filename) {
+        FSM[] loaded = new FSM[1];
+        long bytes = allocatedBytes(() -> loaded[0] = FileHandler.loadFromTextFile(filename));
+        int transitions = loaded[0].getTransitions().size();
+        return transitions == 0 ? 0 : (double) bytes / transitions;
+    }
+
+    public static void printExecutionReport(FSM fsm, String input) {
+        if (!isSupported()) {
+            System.out.println("Error: Allocation measurement is not supported by this JVM.");
+            return;
+        }
+
+        // Measures the backends EXECUTE would use right now; building a compiled machine here
+        // would run javac, which only CODEGEN is meant to do.
+        List<String> labels = List.of("EXECUTE (single input)", "EXECUTE (multi-input, " + batchBackend(fsm) + ")");
+        List<Function<String, String>> executors = List.of(fsm::execute, batchOf(fsm));
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        double[] perExecution = new double[executors.size()];
+        double[] perSymbol = new double[executors.size()];
+        try {
+            for (int i = 0; i < executors.size(); i++) {
+                perExecution[i] = bytesPerExecution(executors.get(i), input);
+                perSymbol[i] = bytesPerSymbol(executors.get(i), input);
+            }
+        } finally {
+            System.setOut(console);
+        }
+
+        System.out.println("---- ALLOCATION REPORT ----");
+        for (int i = 0; i < executors.size(); i++) {
+            System.out.printf("%s: %.1f bytes/execution, %.1f bytes/symbol%n", labels.get(i), perExecution[i], perSymbol[i]);
+        }
+        System.out.println("---------------------------");
+    }
+
+    public static void printLoadReport(String filename) {
+        if (!isSupported()) {
+            System.out.println("Error: Allocation measurement is not supported by this JVM.");
+            return;
+        }
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        double bytes;
+        try {
+            bytes = bytesPerLoadedTransition(filename);
+        } finally {
+            System.setOut(console);
+        }
+        System.out.printf("Loading %s: %.1f bytes/transition%n", filename, bytes);
+    }
+
+    // Allocation regression suite over built-in machines: every path EXECUTE can take must
+    // allocate nothing per input symbol. For LOAD-LAZY only the case where every visited state
+    // is resident is guarded; a resident-state miss reads the file and materializes the state,
+    // so the eviction path is measured and reported but cannot fail the suite. Exits with
+    // status 1 on any failure.
+    public static void main(String[] args) throws IOException {
+        if (!isSupported()) {
+            System.out.println("Error: Allocation measurement is not supported by this JVM.");
+            System.exit(2);
+        }
+
+        boolean passed = true;
+        passed &= checkMachine("two-state", toggleMachine(), "abba");
+        passed &= checkMachine("random-1000", randomMachine(1000, new Random(42)), "abcdcbad");
+        System.out.println(passed ? "PASSED" : "FAILED: execution allocates per input symbol");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static boolean checkMachine(String name, FSM fsm, String pattern) throws IOException {
+        Path file = Files.createTempFile("fsm-allocation", ".txt");
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        String filename = saveQuietly(fsm, file);
+        try (LazyFSM resident = new LazyFSM(filename, fsm.getStates().size());
+             LazyFSM evicting = new LazyFSM(filename, 1)) {
+            boolean passed = check(console, name, "EXECUTE (single input)", fsm::execute, pattern);
+            passed &= check(console, name, "EXECUTE (multi-input, " + batchBackend(fsm) + ")", batchOf(fsm), pattern);
+            passed &= check(console, name, "EXECUTE (LOAD-LAZY, all states resident)", lazyOf(resident), pattern);
+            console.printf("INFO %s / EXECUTE (LOAD-LAZY, 1 resident state): %.3f bytes/symbol (not guarded)%n",
+                    name, bytesPerSymbol(lazyOf(evicting), pattern));
+            if (fsm.compile().isCompiled()) {
+                passed &= check(console, name, "EXECUTE (multi-input, compiled)", batchOf(fsm), pattern);
+            } else {
+                console.println("SKIP " + name + " / EXECUTE (multi-input, compiled): machine too large to compile");
+            }
+            return passed;
+        } finally {
+            System.setOut(console);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static boolean check(PrintStream console, String machine, String path, Function<String, String> executor, String pattern) {
+        double perSymbol = bytesPerSymbol(executor, pattern);
+        // NaN must fail too, so test for the passing condition.
+        boolean passed = Math.abs(perSymbol) < 1.0;
+        console.printf("%s %s / %s: %.3f bytes/symbol%n", passed ? "PASS" : "FAIL", machine, path, perSymbol);
+        return passed;
+    }
+
+    private static String batchBackend(FSM fsm) {
+        CompiledFSM compiled = fsm.getCompiledFSM();
+        if (compiled != null && compiled.isCompiled()) {
+            return "compiled";
+        }
+        return BatchExecutor.isVectorized() ? "vector" : "scalar";
+    }
+
+    private static Function<String, String> batchOf(FSM fsm) {
+        return input -> fsm.executeBatch(List.of(input))[0];
+    }
+
+    private static Function<String, String> lazyOf(LazyFSM lazy) {
+        return input -> {
+            try {
+                return lazy.execute(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static String saveQuietly(FSM fsm, Path file) {
+        FileHandler.saveToTextFile(fsm, file.toString());
+        return file.toString();
+    }
+
+    private static FSM toggleMachine() {
+        FSM fsm = new FSM();
+        fsm.addSymbol("a");
+        fsm.addSymbol("b");
+        fsm.addState("q0", false);
+        fsm.addState("q1", true);
+        fsm.addTransition("a", "q0", "q1");
+        fsm.addTransition("a", "q1", "q0");
+        fsm.addTransition("b", "q0", "q0");
+        fsm.addTransition("b", "q1", "q1");
+        return fsm;
+    }
+
+    private static FSM randomMachine(int stateCount, Random random) {
+        FSM fsm = new FSM();
+        String[] symbols = {"a", "b", "c", "d"};
+        for (String symbol : symbols) {
+            fsm.addSymbol(symbol);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            fsm.addState("s" + i, random.nextBoolean());
+        }
+        for (int i = 0; i < stateCount; i++) {
+            for (String symbol : symbols) {
+                fsm.addTransition(symbol, "s" + i, "s" + random.nextInt(stateCount));
+            }
+        }
+        return fsm;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.*;
+
+public class BatchExecutor {
+    public static final int LANES = 16;
+
+    private static final Kernel SCALAR_KERNEL = BatchExecutor::executeScalar;
+    private static final Kernel KERNEL = loadKernel();
+
+    private final TransitionTable table;
+
+    interface Kernel {
+        // Fills results for inputs; entries left null are resolved by BatchExecutor.
+        void execute(TransitionTable table, List<String> inputs, String[] results);
+    }
+
+    public BatchExecutor(TransitionTable table) {
+        this.table = table;
+    }
+
+    public BatchExecutor(FSM fsm) {
+        this(fsm.getTransitionTable());
+    }
+
+    public static boolean isVectorized() {
+        return KERNEL != SCALAR_KERNEL;
+    }
+
+    public String[] execute(List<String> inputs) {
+        return execute(KERNEL, inputs);
+    }
+
+    // Runs inputs through the scalar kernel whatever kernel is loaded, for comparing the two.
+    String[] executeScalar(List<String> inputs) {
+        return execute(SCALAR_KERNEL, inputs);
+    }
+
+    private String[] execute(Kernel kernel, List<String> inputs) {
+        String[] results = new String[inputs.size()];
+        if (table.getInitialState() < 0) {
+            Arrays.fill(results, "ERROR: Initial state not set");
+            return results;
+        }
+        kernel.execute(table, inputs, results);
+        return results;
+    }
+
+    static String invalidSymbol(char ch) {
+        return "ERROR: Invalid symbol '" + Character.toLowerCase(ch) + "'";
+    }
+
+    private static void executeScalar(TransitionTable table, List<String> inputs, String[] results) {
+        int[] next = table.nextTable();
+        boolean[] accepting = table.acceptingTable();
+        int symbolCount = table.getSymbolCount();
+        int sink = table.getSinkState();
+
+        int[] current = new int[LANES];
+        int[] end = new int[LANES];
+        String[] lane = new String[LANES];
+
+        for (int base = 0; base < results.length; base += LANES) {
+            int lanes = Math.min(LANES, results.length - base);
+            int maxLength = 0;
+            for (int i = 0; i < lanes; i++) {
+                lane[i] = inputs.get(base + i);
+                current[i] = table.getInitialState();
+                end[i] = lane[i].length();
+                maxLength = Math.max(maxLength, end[i]);
+            }
+
+            // Step every lane by one symbol before moving on, so the table loads
+            // of independent inputs are in flight at the same time.
+            for (int step = 0; step < maxLength; step++) {
+                for (int i = 0; i < lanes; i++) {
+                    if (step >= end[i]) {
+                        continue;
+                    }
+                    char ch = lane[i].charAt(step);
+                    int symbol = table.symbolIndex(ch);
+                    if (symbol < 0) {
+                        results[base + i] = invalidSymbol(ch);
+                        end[i] = step;
+                        continue;
+                    }
+                    int state = next[current[i] * symbolCount + symbol];
+                    current[i] = state;
+                    if (state == sink) {
+                        end[i] = step;
+                    }
+                }
+            }
+
+            for (int i = 0; i < lanes; i++) {
+                if (results[base + i] == null) {
+                    results[base + i] = accepting[current[i]] ? "YES" : "NO";
+                }
+            }
+        }
+    }
+
+    // The gather kernel needs the incubating Vector API (--add-modules jdk.incubator.vector);
+    // it is loaded by name so this class still compiles and runs without the module.
+    // -Dfsm.vector=false forces the scalar kernel.
+    private static Kernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("fsm.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR_KERNEL;
+        }
+        try {
+            return (Kernel) Class.forName("VectorBatchKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR_KERNEL;
+        }
+    }
+}
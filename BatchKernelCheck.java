@@ -0,0 +1,99 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Compares the loaded batch kernel with the scalar one on random machines, including a machine
+// without symbols and batch sizes that leave a partial last block. Run it with
+// --add-modules jdk.incubator.vector to check the vector kernel. Exits with status 1 on a mismatch.
+public class BatchKernelCheck {
+    private static final String SYMBOLS = "abcdefgh0123";
+
+    public static void main(String[] args) {
+        int machines = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 42);
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        int mismatches = 0;
+        int batches = 0;
+        try {
+            FSM empty = new FSM();
+            empty.addState("q0", true);
+            mismatches += compare(console, "no symbols", empty, List.of("a", "b", "", "ab"));
+
+            for (int m = 0; m < machines; m++) {
+                FSM fsm = randomFSM(random);
+                for (int size = 1; size <= 3 * BatchExecutor.LANES + 1; size += 1 + random.nextInt(5)) {
+                    mismatches += compare(console, "machine " + m, fsm, randomInputs(random, fsm, size));
+                    batches++;
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+
+        console.println("Kernel: " + (BatchExecutor.isVectorized() ? "vector" : "scalar") + ", batches: " + batches
+                + ", mismatches: " + mismatches);
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    private static int compare(PrintStream console, String name, FSM fsm, List<String> inputs) {
+        BatchExecutor executor = new BatchExecutor(fsm);
+        String[] expected = executor.executeScalar(inputs);
+        String[] actual;
+        try {
+            actual = executor.execute(inputs);
+        } catch (RuntimeException e) {
+            console.println("FAIL " + name + " " + inputs + ": " + e);
+            return 1;
+        }
+        if (Arrays.equals(expected, actual)) {
+            return 0;
+        }
+        console.println("FAIL " + name + " " + inputs + ": expected " + Arrays.toString(expected)
+                + ", got " + Arrays.toString(actual));
+        return 1;
+    }
+
+    // Machines with missing transitions, so some inputs fall into the sink state.
+    private static FSM randomFSM(Random random) {
+        FSM fsm = new FSM();
+        int symbolCount = random.nextInt(SYMBOLS.length() + 1);
+        for (int i = 0; i < symbolCount; i++) {
+            fsm.addSymbol(String.valueOf(SYMBOLS.charAt(i)));
+        }
+        int stateCount = 1 + random.nextInt(40);
+        for (int i = 0; i < stateCount; i++) {
+            fsm.addState("s" + i, random.nextInt(3) == 0);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            for (int s = 0; s < symbolCount; s++) {
+                if (random.nextInt(10) != 0) {
+                    fsm.addTransition(String.valueOf(SYMBOLS.charAt(s)), "s" + i, "s" + random.nextInt(stateCount));
+                }
+            }
+        }
+        return fsm;
+    }
+
+    // Mostly declared symbols in either case, with the odd undeclared one.
+    private static List<String> randomInputs(Random random, FSM fsm, int size) {
+        String declared = String.join("", fsm.getSymbols());
+        List<String> inputs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                char ch = declared.isEmpty() || random.nextInt(50) == 0
+                        ? SYMBOLS.charAt(random.nextInt(SYMBOLS.length()))
+                        : declared.charAt(random.nextInt(declared.length()));
+                input.append(random.nextBoolean() ? Character.toUpperCase(ch) : ch);
+            }
+            inputs.add(input.toString());
+        }
+        return inputs;
+    }
+}
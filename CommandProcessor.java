@@ -2,14 +2,32 @@ import java.io.*;
 import java.util.*;
 
 public class CommandProcessor {
+    public static final int DEFAULT_MAX_RESIDENT_STATES = 100_000;
+
     private final FSM fsm;
     private final Logger logger;
+    private LazyFSM lazyFSM;
 
     public CommandProcessor(FSM fsm, Logger logger) {
         this.fsm = fsm;
         this.logger = logger;
     }
 
+    // The machine EXECUTE runs against when one was loaded with LOAD-LAZY, otherwise null.
+    public LazyFSM getLazyFSM() {
+        return lazyFSM;
+    }
+
+    public void loadLazy(String filename, int maxResidentStates) {
+        LazyFSM loaded = FileHandler.loadLazyFromTextFile(filename, maxResidentStates);
+        if (loaded == null) {
+            return;
+        }
+        closeLazy();
+        lazyFSM = loaded;
+        logger.logAndPrint("EXECUTE now runs against " + filename + "; use CLEAR; to return to the editable machine.");
+    }
+
     public void processCommand(String commandLine) {
         if (!commandLine.contains(";")) {
             logger.logAndPrint("Error: Commands must end with ';'");
@@ -18,6 +36,11 @@ public class CommandProcessor {
 
         String command = commandLine.split(";")[0].trim();
 
+        if (lazyFSM != null && isEditCommand(command.toUpperCase())) {
+            logger.logAndPrint("Error: A lazily loaded machine is read-only. Use CLEAR; first.");
+            return;
+        }
+
         if (command.toUpperCase().startsWith("SYMBOLS")) {
             handleSymbolsCommand(command.substring(7).trim());
         } else if (command.toUpperCase().startsWith("STATES")) {
@@ -34,8 +57,20 @@ public class CommandProcessor {
             handleClearCommand();
         } else if (command.equalsIgnoreCase("PRINT")) {
             handlePrintCommand();
+        } else if (command.toUpperCase().startsWith("PRINT")) {
+            handlePrintCommand(command.substring(5).trim());
         } else if (command.toUpperCase().startsWith("LOG")) {
             handleLogCommand(command.substring(3).trim());
+        } else if (command.toUpperCase().startsWith("EQUIVALENT")) {
+            handleEquivalentCommand(command.substring(10).trim());
+        } else if (command.toUpperCase().startsWith("DIAGNOSTICS-LOAD")) {
+            handleLoadDiagnosticsCommand(command.substring(16).trim());
+        } else if (command.toUpperCase().startsWith("DIAGNOSTICS")) {
+            handleDiagnosticsCommand(command.substring(11).trim());
+        } else if (command.toUpperCase().startsWith("LOAD-LAZY")) {
+            handleLoadLazyCommand(command.substring(9).trim());
+        } else if (command.equalsIgnoreCase("CODEGEN")) {
+            handleCodegenCommand();
         } else if (command.toUpperCase().startsWith("COMPILE")) {
             FileHandler.compileFSM(fsm, command.substring(7).trim(), logger);
         } else if (command.toUpperCase().startsWith("LOAD")) {
@@ -56,9 +91,7 @@ public class CommandProcessor {
             if (!isValidSymbolLength(sym)) {
                 logger.logAndPrint("Warning: '" + sym + "' is not allowed as a symbol, length must be 1");
             } else if (isValidSymbol(sym)) {
-                if (!fsm.getSymbols().add(sym.toUpperCase())) {
-                    logger.logAndPrint("Warning: Symbol '" + sym + "' was already declared.");
-                }
+                fsm.addSymbol(sym);
             } else {
                 logger.logAndPrint("Warning: Invalid symbol '" + sym + "'. Must be alphanumeric and single character.");
             }
@@ -67,8 +100,8 @@ public class CommandProcessor {
 
     private void handleStatesCommand(String statesPart) {
         if (statesPart.isEmpty()) {
-            logger.logAndPrint("Current states: " + fsm.getStates());
-            logger.logAndPrint("Initial State: " + (fsm.getInitialState() != null ? fsm.getInitialState() : "Not Set"));
+            logger.logAndPrint("Current states: " + fsm.getStates().keySet());
+            logger.logAndPrint("Initial State: " + (fsm.getInitialState() != null ? fsm.getInitialState().getName() : "Not Set"));
             logger.logAndPrint("Final States: " + fsm.getFinalStates());
             return;
         }
@@ -77,10 +110,9 @@ public class CommandProcessor {
         for (String st : newStates) {
             st = st.toUpperCase();
             if (isValidState(st)) {
-                if (!fsm.getStates().add(st)) {
-                    logger.logAndPrint("Warning: State '" + st + "' was already declared.");
-                } else if (fsm.getInitialState() == null) {
-                    fsm.setInitialState(st);
+                boolean hadInitialState = fsm.getInitialState() != null;
+                fsm.addState(st, false);
+                if (!hadInitialState && fsm.getInitialState() != null) {
                     logger.logAndPrint("Info: Initial state set to '" + st + "'.");
                 }
             } else {
@@ -101,11 +133,6 @@ public class CommandProcessor {
             return;
         }
 
-        if (!fsm.getStates().contains(st)) {
-            fsm.addState(st);
-            logger.logAndPrint("Warning: State '" + st + "' was not previously declared, added automatically.");
-        }
-
         fsm.setInitialState(st);
         logger.logAndPrint("Initial state set to '" + st + "'.");
     }
@@ -124,14 +151,7 @@ public class CommandProcessor {
                 continue;
             }
 
-            if (!fsm.getStates().contains(st)) {
-                fsm.addState(st);
-                logger.logAndPrint("Warning: State '" + st + "' was not previously declared, added automatically.");
-            }
-
-            if (!fsm.getFinalStates().add(st)) {
-                logger.logAndPrint("Warning: State '" + st + "' was already declared as a final state.");
-            }
+            fsm.addFinalState(st);
         }
     }
 
@@ -158,28 +178,29 @@ public class CommandProcessor {
             String currentState = parts[1].toUpperCase();
             String nextState = String.join("", Arrays.copyOfRange(parts, 2, parts.length)).toUpperCase();
 
-            if (!fsm.getSymbols().contains(symbol)) {
+            if (!fsm.getSymbols().contains(symbol.toLowerCase())) {
                 logger.logAndPrint("Error: Symbol '" + symbol + "' not declared.");
                 continue;
             }
-            if (!fsm.getStates().contains(currentState)) {
+            if (!fsm.getStates().containsKey(currentState.toLowerCase())) {
                 logger.logAndPrint("Error: Current state '" + currentState + "' not declared.");
                 continue;
             }
-            if (!fsm.getStates().contains(nextState)) {
+            if (!fsm.getStates().containsKey(nextState.toLowerCase())) {
                 logger.logAndPrint("Error: Next state '" + nextState + "' not declared.");
                 continue;
             }
 
-            boolean contains = fsm.addTransition(symbol, currentState, nextState);
-
-            if (contains) {
-                logger.logAndPrint("Warning: Transition already exists for (" + symbol + ", " + currentState + "). Overriding.");
-            }
+            fsm.addTransition(symbol, currentState, nextState);
         }
     }
 
     private void handleExecuteCommand(String inputString) {
+        if (lazyFSM != null) {
+            handleLazyExecuteCommand(inputString);
+            return;
+        }
+
         if (fsm.getInitialState() == null) {
             logger.logAndPrint("Error: No initial state defined.");
             return;
@@ -190,58 +211,149 @@ public class CommandProcessor {
             return;
         }
 
-        inputString = inputString.toUpperCase();
-        String currentState = fsm.getInitialState();
-        System.out.print(currentState + " ");
+        String[] inputs = inputString.split("\\s+");
+        if (inputs.length > 1) {
+            String[] results = fsm.executeBatch(Arrays.asList(inputs));
+            for (int i = 0; i < inputs.length; i++) {
+                logger.logAndPrint(inputs[i].toUpperCase() + " " + results[i]);
+            }
+            return;
+        }
+
+        logger.logAndPrint(fsm.execute(inputString));
+    }
 
-        for (char ch : inputString.toCharArray()) {
-            String symbol = String.valueOf(ch);
+    private void handleCodegenCommand() {
+        if (fsm.getInitialState() == null) {
+            logger.logAndPrint("Error: No initial state defined.");
+            return;
+        }
 
-            if (!fsm.getSymbols().contains(symbol)) {
-                logger.logAndPrint("\nError: Symbol '" + symbol + "' not declared.");
-                return;
-            }
+        if (fsm.compile().isCompiled()) {
+            logger.logAndPrint("Compiled machine ready; multi-input EXECUTE uses it until the next edit.");
+        } else {
+            logger.logAndPrint("Machine not compiled; multi-input EXECUTE uses the table interpreter.");
+        }
+    }
+
+    private void handleLoadLazyCommand(String argumentPart) {
+        String[] arguments = argumentPart.split("\\s+");
+        if (argumentPart.isEmpty() || arguments.length > 2) {
+            logger.logAndPrint("Error: Usage: LOAD-LAZY <file> [<max resident states>];");
+            return;
+        }
 
-            Map<String, String> stateTransitions = fsm.getTransitions().get(currentState);
-            if (stateTransitions == null || !stateTransitions.containsKey(symbol)) {
-                logger.logAndPrint("\nNO (No valid transition from state '" + currentState + "' with symbol '" + symbol + "')");
+        int maxResidentStates = DEFAULT_MAX_RESIDENT_STATES;
+        if (arguments.length == 2) {
+            try {
+                maxResidentStates = Integer.parseInt(arguments[1]);
+            } catch (NumberFormatException e) {
+                logger.logAndPrint("Error: Resident state limit must be a number. Found: " + arguments[1]);
                 return;
             }
+        }
+        loadLazy(arguments[0], maxResidentStates);
+    }
 
-            currentState = stateTransitions.get(symbol);
-            System.out.print(currentState + " ");
+    private void handleLazyExecuteCommand(String inputString) {
+        if (inputString.isEmpty()) {
+            logger.logAndPrint("Error: No input string provided.");
+            return;
         }
 
-        if (fsm.getFinalStates().contains(currentState)) {
-            logger.logAndPrint("\nYES");
-        } else {
-            logger.logAndPrint("\nNO");
+        String[] inputs = inputString.split("\\s+");
+        try {
+            for (String input : inputs) {
+                String result = lazyFSM.execute(input);
+                logger.logAndPrint(inputs.length > 1 ? input.toUpperCase() + " " + result : result);
+            }
+        } catch (IOException e) {
+            logger.logAndPrint("Error: Could not read transitions: " + e.getMessage());
         }
     }
 
+    private void closeLazy() {
+        if (lazyFSM == null) {
+            return;
+        }
+        try {
+            lazyFSM.close();
+        } catch (IOException e) {
+            logger.logAndPrint("Warning: Could not close lazily loaded file: " + e.getMessage());
+        }
+        lazyFSM = null;
+    }
+
+    private boolean isEditCommand(String command) {
+        return command.startsWith("SYMBOLS") || command.startsWith("STATES") || command.startsWith("INITIAL-STATE")
+                || command.startsWith("FINAL-STATES") || command.startsWith("TRANSITIONS");
+    }
+
     private void handleClearCommand() {
-        fsm.getSymbols().clear();
-        fsm.getStates().clear();
-        fsm.setInitialState(null);
-        fsm.getFinalStates().clear();
-        fsm.getTransitions().clear();
+        closeLazy();
+        fsm.clearFSM();
         logger.logAndPrint("FSM cleared.");
         logger.log("FSM cleared.");
     }
 
     private void handlePrintCommand() {
-        logger.logAndPrint("---- FSM CURRENT STATE ----");
-        logger.logAndPrint("Symbols: " + fsm.getSymbols());
-        logger.logAndPrint("States: " + fsm.getStates());
-        logger.logAndPrint("Initial State: " + fsm.getInitialState());
-        logger.logAndPrint("Final States: " + fsm.getFinalStates());
-        logger.logAndPrint("Transitions:");
-        for (String fromState : fsm.getTransitions().keySet()) {
-            for (String symbol : fsm.getTransitions().get(fromState).keySet()) {
-                logger.logAndPrint("  On '" + symbol + "' from " + fromState + " to " + fsm.getTransitions().get(fromState).get(symbol));
-            }
+        fsm.printFSM(Integer.MAX_VALUE, logger);
+    }
+
+    private void handlePrintCommand(String limitPart) {
+        int limit;
+        try {
+            limit = Integer.parseInt(limitPart);
+        } catch (NumberFormatException e) {
+            logger.logAndPrint("Error: PRINT limit must be a number. Found: " + limitPart);
+            return;
+        }
+        if (limit < 0) {
+            logger.logAndPrint("Error: PRINT limit cannot be negative. Found: " + limit);
+            return;
+        }
+        fsm.printFSM(limit, logger);
+    }
+
+    private void handleEquivalentCommand(String filename) {
+        if (filename.isEmpty()) {
+            logger.logAndPrint("Error: No file provided.");
+            return;
+        }
+
+        FSM other = filename.endsWith(".fs") ? FileHandler.loadFromBinaryFile(filename) : FileHandler.loadFromTextFile(filename);
+        if (other == null) {
+            return;
+        }
+
+        LanguageComparator comparator = new LanguageComparator(fsm, other);
+        String counterexample = comparator.equivalenceCounterexample();
+        if (counterexample == null) {
+            logger.logAndPrint("YES");
+        } else {
+            String owner = comparator.acceptedByLeft(counterexample) ? "current machine" : filename;
+            logger.logAndPrint("NO (counterexample '" + counterexample.toUpperCase() + "' is accepted only by " + owner + ")");
+        }
+    }
+
+    private void handleDiagnosticsCommand(String inputString) {
+        if (fsm.getInitialState() == null) {
+            logger.logAndPrint("Error: No initial state defined.");
+            return;
+        }
+        if (inputString.isEmpty()) {
+            logger.logAndPrint("Error: No input string provided.");
+            return;
+        }
+        AllocationProfiler.printExecutionReport(fsm, inputString);
+    }
+
+    private void handleLoadDiagnosticsCommand(String filename) {
+        if (filename.isEmpty()) {
+            logger.logAndPrint("Error: No file provided.");
+            return;
         }
-        logger.logAndPrint("----------------------------");
+        AllocationProfiler.printLoadReport(filename);
     }
 
     private void handleLogCommand(String logPart) {
@@ -0,0 +1,172 @@
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.List;
+
+public class CompiledFSM {
+    // The generated run method costs about 22 bytes of bytecode per case. HotSpot never
+    // JIT-compiles methods over 8000 bytes, and such a machine ran about 20x slower than the
+    // table interpreter, so larger machines stay on the interpreter.
+    public static final int MAX_COMPILED_CASES = 256;
+    private static final String CLASS_NAME = "GeneratedMachine";
+
+    private final TransitionTable table;
+    private final CompiledMachine machine;
+
+    public CompiledFSM(FSM fsm) {
+        this.table = fsm.getTransitionTable();
+        this.machine = table.getInitialState() >= 0 && caseCount(table) <= MAX_COMPILED_CASES ? define(table) : null;
+    }
+
+    public boolean isCompiled() {
+        return machine != null;
+    }
+
+    public String execute(String input) {
+        return execute(input, machine != null);
+    }
+
+    // Runs input through the table interpreter even when a compiled machine exists, as the
+    // baseline the generated class is measured against.
+    String executeInterpreted(String input) {
+        return execute(input, false);
+    }
+
+    private String execute(String input, boolean compiled) {
+        if (table.getInitialState() < 0) {
+            return "ERROR: Initial state not set";
+        }
+
+        int result = compiled ? machine.run(input) : interpret(input);
+        if (result < 0) {
+            return "ERROR: Invalid symbol '" + Character.toLowerCase(input.charAt(-1 - result)) + "'";
+        }
+        return result == 1 ? "YES" : "NO";
+    }
+
+    private int interpret(CharSequence input) {
+        int state = table.getInitialState();
+        int sink = table.getSinkState();
+        for (int i = 0, length = input.length(); i < length; i++) {
+            int symbol = table.symbolIndex(input.charAt(i));
+            if (symbol < 0) {
+                return -1 - i;
+            }
+            state = table.next(state, symbol);
+            if (state == sink) {
+                return 0;
+            }
+        }
+        return table.isAccepting(state) ? 1 : 0;
+    }
+
+    private static int caseCount(TransitionTable table) {
+        return table.getStateCount() * (table.getSymbolCount() + 1);
+    }
+
+    static String generateSource(TransitionTable table) {
+        StringBuilder source = new StringBuilder();
+        source.append("final class ").append(CLASS_NAME).append(" implements CompiledMachine {\n");
+        source.append("    public int run(CharSequence input) {\n");
+        source.append("        int state = ").append(table.getInitialState()).append(";\n");
+        source.append("        for (int i = 0, length = input.length(); i < length; i++) {\n");
+        source.append("            char ch = input.charAt(i);\n");
+        source.append("            switch (state) {\n");
+        for (int state = 0; state < table.getSinkState(); state++) {
+            source.append("            case ").append(state).append(":\n");
+            source.append("                switch (ch) {\n");
+            for (int symbol = 0; symbol < table.getSymbolCount(); symbol++) {
+                char lower = Character.toLowerCase(table.getSymbol(symbol));
+                char upper = Character.toUpperCase(table.getSymbol(symbol));
+                source.append("                case '").append(lower).append("':");
+                if (upper != lower) {
+                    source.append(" case '").append(upper).append("':");
+                }
+                int next = table.next(state, symbol);
+                if (next == table.getSinkState()) {
+                    source.append(" return 0;\n");
+                } else {
+                    source.append(" state = ").append(next).append("; continue;\n");
+                }
+            }
+            source.append("                default: return -1 - i;\n");
+            source.append("                }\n");
+        }
+        source.append("            default: return 0;\n");
+        source.append("            }\n");
+        source.append("        }\n");
+        StringBuilder acceptingCases = new StringBuilder();
+        for (int state = 0; state < table.getSinkState(); state++) {
+            if (table.isAccepting(state)) {
+                acceptingCases.append("        case ").append(state).append(":\n");
+            }
+        }
+        if (acceptingCases.length() == 0) {
+            source.append("        return 0;\n");
+        } else {
+            source.append("        switch (state) {\n");
+            source.append(acceptingCases);
+            source.append("            return 1;\n");
+            source.append("        default:\n");
+            source.append("            return 0;\n");
+            source.append("        }\n");
+        }
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    // Compiles the generated source in memory and defines it as a hidden class next to
+    // this one; returns null so callers fall back to the interpreter when no compiler is
+    // available (e.g. on a JRE).
+    private static CompiledMachine define(TransitionTable table) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            System.out.println("Warning: No Java compiler available (JRE), using interpreter.");
+            return null;
+        }
+
+        String source = generateSource(table);
+        ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+        JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        StandardJavaFileManager standardManager = compiler.getStandardFileManager(null, null, null);
+        JavaFileManager fileManager = new ForwardingJavaFileManager<>(standardManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + className + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return bytecode;
+                    }
+                };
+            }
+        };
+
+        List<String> options = List.of("-classpath", System.getProperty("java.class.path"), "-proc:none", "-g:none");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, List.of(sourceFile)).call();
+        if (!Boolean.TRUE.equals(success)) {
+            String reason = diagnostics.getDiagnostics().isEmpty() ? "unknown error"
+                    : diagnostics.getDiagnostics().get(0).getMessage(null);
+            System.out.println("Warning: Could not compile machine, using interpreter: " + reason);
+            return null;
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytecode.toByteArray(), true);
+            return (CompiledMachine) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            System.out.println("Warning: Could not define compiled machine, using interpreter: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+public class CompiledFSMBenchmark {
+    public static void main(String[] args) {
+        int stateCount = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int inputLength = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        FSM fsm = randomFSM(stateCount, new Random(42));
+        String input = randomInput(inputLength, new Random(7));
+        CompiledFSM compiled = fsm.compile();
+
+        console.println("States: " + stateCount + ", input length: " + inputLength + ", compiled: " + compiled.isCompiled());
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                compiled.executeInterpreted(input);
+            }
+            long interpreted = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                compiled.execute(input);
+            }
+            long generated = System.nanoTime() - start;
+
+            console.printf("Round %d: table interpreter %.2f ns/symbol, compiled %.2f ns/symbol%n", round + 1,
+                    (double) interpreted / iterations / inputLength, (double) generated / iterations / inputLength);
+        }
+        System.setOut(console);
+    }
+
+    private static FSM randomFSM(int stateCount, Random random) {
+        FSM fsm = new FSM();
+        fsm.addSymbol("a");
+        fsm.addSymbol("b");
+        for (int i = 0; i < stateCount; i++) {
+            fsm.addState("s" + i, random.nextBoolean());
+        }
+        for (int i = 0; i < stateCount; i++) {
+            fsm.addTransition("a", "s" + i, "s" + random.nextInt(stateCount));
+            fsm.addTransition("b", "s" + i, "s" + random.nextInt(stateCount));
+        }
+        return fsm;
+    }
+
+    private static String randomInput(int length, Random random) {
+        StringBuilder input = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            input.append(random.nextBoolean() ? 'a' : 'b');
+        }
+        return input.toString();
+    }
+}
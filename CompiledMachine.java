@@ -0,0 +1,5 @@
+public interface CompiledMachine {
+    // Returns 1 if the input is accepted, 0 if it is rejected and -1 - i if the
+    // character at index i is not a symbol of the machine.
+    int run(CharSequence input);
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class ExportBuffer {
+    private final ByteBuffer buffer;
+    private WritableByteChannel channel;
+
+    public ExportBuffer(int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    // Points the buffer at a new channel, dropping anything left over from a failed export.
+    public ExportBuffer to(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.clear();
+        return this;
+    }
+
+    public ExportBuffer put(char ch) throws IOException {
+        if (ch >= 0x80) {
+            return putBytes(String.valueOf(ch).getBytes(StandardCharsets.UTF_8));
+        }
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) ch);
+        return this;
+    }
+
+    public ExportBuffer put(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            put(text.charAt(i));
+        }
+        return this;
+    }
+
+    public ExportBuffer putUpperCase(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            put(Character.toUpperCase(text.charAt(i)));
+        }
+        return this;
+    }
+
+    public ExportBuffer put(long value) throws IOException {
+        return put(Long.toString(value));
+    }
+
+    public ExportBuffer newLine() throws IOException {
+        return put(System.lineSeparator());
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ExportBuffer putBytes(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put(b);
+        }
+        return this;
+    }
+}
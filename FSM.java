@@ -1,9 +1,22 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class FSM implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final ExportBuffer PRINT_BUFFER = new ExportBuffer(1 << 16);
+    private static PrintStream consoleStream;
+    private static WritableByteChannel consoleChannel;
     private Logger logger;
+    private transient Journal journal;
+    private transient volatile TransitionTable transitionTable;
+    private transient volatile CompiledFSM compiledFSM;
     private Set<String> symbols;
     private Map<String, State> states = new LinkedHashMap<>();
     private State initialState;
@@ -38,6 +51,12 @@ public class FSM implements Serializable {
     public List<Transition> getTransitions() {
         return transitions;
     }
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+    public Journal getJournal() {
+        return journal;
+    }
     public void startLogging(String filename) {
         logger.startLogging(filename);
     }
@@ -52,6 +71,11 @@ public class FSM implements Serializable {
         }
         if (!symbols.add(symbol)) {
             System.out.println("Warning: " + symbol + " was already declared as a symbol");
+        } else {
+            invalidateTables();
+            if (journal != null) {
+                journal.recordSymbol(symbol);
+            }
         }
     }
 
@@ -68,6 +92,10 @@ public class FSM implements Serializable {
                 State state = states.get(name);
                 state.setFinal(true);
                 finalStates.add(state);
+                invalidateTables();
+                if (journal != null) {
+                    journal.recordFinalState(name);
+                }
             }
             return;
         }
@@ -80,6 +108,10 @@ public class FSM implements Serializable {
         if (initialState == null) {
             initialState = state;
         }
+        invalidateTables();
+        if (journal != null) {
+            journal.recordState(name, isFinal);
+        }
     }
     public void setInitialState(String name) {
         name = name.toLowerCase();
@@ -90,6 +122,10 @@ public class FSM implements Serializable {
             state = states.get(name);
         }
         initialState = state;
+        invalidateTables();
+        if (journal != null) {
+            journal.recordInitialState(name);
+        }
     }
     public void addFinalState(String name) {
         name = name.toLowerCase();
@@ -107,6 +143,10 @@ public class FSM implements Serializable {
 
         state.setFinal(true);
         finalStates.add(state);
+        invalidateTables();
+        if (journal != null) {
+            journal.recordFinalState(name);
+        }
     }
 
     public void addTransition(String symbol, String from, String to) {
@@ -148,89 +188,230 @@ public class FSM implements Serializable {
         Transition newTransition = new Transition(symbol, fromState, toState);
         transitions.add(newTransition);
         transitionMap.put(key, newTransition);
+        invalidateTables();
+        if (journal != null) {
+            journal.recordTransition(symbol, from, to);
+        }
     }
     public String execute(String input) {
         if (initialState == null) {
             return "ERROR: Initial state not set";
         }
 
-        State currentState = initialState;
-        List<String> path = new ArrayList<>();
-        path.add(currentState.getName().toUpperCase());
-
-        for (char ch : input.toCharArray()) {
-            String symbol = String.valueOf(ch).toLowerCase();
-
-            if (!symbols.contains(symbol)) {
-                return "ERROR: Invalid symbol '" + symbol + "'";
+        TransitionTable table = getTransitionTable();
+        int state = table.getInitialState();
+        int steps = 0;
+        for (; steps < input.length(); steps++) {
+            char ch = input.charAt(steps);
+            int symbol = table.symbolIndex(ch);
+            if (symbol < 0) {
+                return BatchExecutor.invalidSymbol(ch);
             }
-
-            String key = symbol + "_" + currentState.getName();
-            Transition transition = transitionMap.get(key);
-
-            if (transition == null) {
-                System.out.println(String.join(" ", path));
-                return "NO";
+            int next = table.next(state, symbol);
+            if (next == table.getSinkState()) {
+                break;
             }
-
-            currentState = transition.getToState();
-            path.add(currentState.getName().toUpperCase());
+            state = next;
         }
-        System.out.println(String.join(" ", path));
-
-        String result = finalStates.contains(currentState) ? "YES" : "NO";
+        printPath(table, input, steps);
 
-        return result;
+        if (steps < input.length()) {
+            return "NO";
+        }
+        return table.isAccepting(state) ? "YES" : "NO";
+    }
+    // Reuses one channel per System.out so printing does not allocate a new channel and
+    // transfer array each time; callers hold the PRINT_BUFFER lock.
+    private static WritableByteChannel consoleChannel() {
+        if (consoleStream != System.out) {
+            consoleStream = System.out;
+            consoleChannel = Channels.newChannel(consoleStream);
+        }
+        return consoleChannel;
+    }
+    // Replays the first steps symbols of input and prints the visited states; nothing is
+    // allocated per symbol.
+    private void printPath(TransitionTable table, String input, int steps) {
+        synchronized (PRINT_BUFFER) {
+            System.out.flush();
+            ExportBuffer out = PRINT_BUFFER.to(consoleChannel());
+            try {
+                int state = table.getInitialState();
+                out.put(table.getDisplayName(state));
+                for (int i = 0; i < steps; i++) {
+                    state = table.next(state, table.symbolIndex(input.charAt(i)));
+                    out.put(' ').put(table.getDisplayName(state));
+                }
+                out.newLine();
+                out.flush();
+            } catch (IOException e) {
+                System.out.println("Error: Could not print path");
+                System.out.println(e.getMessage());
+            }
+            System.out.flush();
+        }
+    }
+    public String[] executeBatch(List<String> inputs) {
+        CompiledFSM compiled = compiledFSM;
+        if (compiled != null && compiled.isCompiled()) {
+            String[] results = new String[inputs.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = compiled.execute(inputs.get(i));
+            }
+            return results;
+        }
+        return new BatchExecutor(getTransitionTable()).execute(inputs);
+    }
+    public TransitionTable getTransitionTable() {
+        TransitionTable table = transitionTable;
+        if (table == null) {
+            table = TransitionTable.of(this);
+            transitionTable = table;
+        }
+        return table;
+    }
+    private void invalidateTables() {
+        transitionTable = null;
+        compiledFSM = null;
+    }
+    // The machine built by compile(), or null before CODEGEN and after every edit.
+    public CompiledFSM getCompiledFSM() {
+        return compiledFSM;
+    }
+    public CompiledFSM compile() {
+        CompiledFSM compiled = compiledFSM;
+        if (compiled == null) {
+            compiled = new CompiledFSM(this);
+            compiledFSM = compiled;
+        }
+        return compiled;
+    }
+    public String equivalenceCounterexample(FSM other) {
+        return new LanguageComparator(this, other).equivalenceCounterexample();
+    }
+    public boolean isEquivalentTo(FSM other) {
+        return equivalenceCounterexample(other) == null;
+    }
+    public String inclusionCounterexample(FSM other) {
+        return new LanguageComparator(this, other).inclusionCounterexample();
+    }
+    public boolean isIncludedIn(FSM other) {
+        return inclusionCounterexample(other) == null;
     }
     public boolean isLoggingEnabled() {
         return logger.isLoggingEnabled();
     }
     public void printFSM() {
-        System.out.print("SYMBOLS {");
-        boolean first = true;
-        for (String symbol : symbols) {
-            if (!first) System.out.print(",");
-            else first = false;
-            System.out.print(symbol);
-        }
-        System.out.println("}");
-
-        System.out.print("STATES {");
-        first = true;
-        for (String state : states.keySet()) {
-            if (!first) System.out.print(", ");
-            else first = false;
-            System.out.print(state.toUpperCase());
-        }
-        System.out.println("}");
-
-        System.out.println("INITIAL STATE " + (initialState != null ? initialState.getName().toUpperCase() : "None"));
-
-        System.out.print("FINAL STATES {");
-        first = true;
-        for (State state : finalStates) {
-            if (!first) System.out.print(", ");
-            else first = false;
-            System.out.print(state.getName().toUpperCase());
-        }
-        System.out.println("}");
-
-        System.out.print("TRANSITIONS ");
-        first = true;
-        for (Transition t : transitions) {
-            if (!first) System.out.print(", ");
-            else first = false;
-            System.out.print(t.getSymbol() + " " +
-                    t.getFromState().getName().toUpperCase() + " " +
-                    t.getToState().getName().toUpperCase());
-        }
-        System.out.println();
+        printFSM(Integer.MAX_VALUE);
+    }
+    public void printFSM(int maxTransitions) {
+        synchronized (PRINT_BUFFER) {
+            writeFSM(maxTransitions, consoleChannel());
+        }
+    }
+    // Streams to the console as printFSM does and, when logging is enabled, copies the same
+    // bytes into the log; only the log copy is held in memory, so PRINT <limit> bounds it.
+    public void printFSM(int maxTransitions, Logger log) {
+        if (!log.isLoggingEnabled()) {
+            printFSM(maxTransitions);
+            return;
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        synchronized (PRINT_BUFFER) {
+            writeFSM(maxTransitions, tee(consoleChannel(), Channels.newChannel(copy)));
+        }
+        log.log(copy.toString(StandardCharsets.UTF_8).stripTrailing());
+    }
+    private static WritableByteChannel tee(WritableByteChannel console, WritableByteChannel copy) {
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                ByteBuffer written = src.duplicate();
+                int count = console.write(src);
+                written.limit(written.position() + count);
+                while (written.hasRemaining()) {
+                    copy.write(written);
+                }
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return console.isOpen();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+    private void writeFSM(int maxTransitions, WritableByteChannel channel) {
+        System.out.flush();
+        ExportBuffer out = PRINT_BUFFER.to(channel);
+        try {
+            out.put("SYMBOLS {");
+            boolean first = true;
+            for (String symbol : symbols) {
+                if (!first) out.put(',');
+                else first = false;
+                out.put(symbol);
+            }
+            out.put('}').newLine();
+
+            out.put("STATES {");
+            first = true;
+            for (String state : states.keySet()) {
+                if (!first) out.put(", ");
+                else first = false;
+                out.putUpperCase(state);
+            }
+            out.put('}').newLine();
+
+            out.put("INITIAL STATE ");
+            if (initialState != null) out.putUpperCase(initialState.getName());
+            else out.put("None");
+            out.newLine();
+
+            out.put("FINAL STATES {");
+            first = true;
+            for (State state : finalStates) {
+                if (!first) out.put(", ");
+                else first = false;
+                out.putUpperCase(state.getName());
+            }
+            out.put('}').newLine();
+
+            out.put("TRANSITIONS");
+            int printed = 0;
+            for (Transition t : transitions) {
+                if (printed == maxTransitions) {
+                    out.put(" ... (").put(transitions.size() - printed).put(" more)");
+                    break;
+                }
+                out.put(printed > 0 ? ", " : " ");
+                out.put(t.getSymbol()).put(' ')
+                        .putUpperCase(t.getFromState().getName()).put(' ')
+                        .putUpperCase(t.getToState().getName());
+                printed++;
+            }
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error: Could not print FSM");
+            System.out.println(e.getMessage());
+        }
+        System.out.flush();
     }
     public void clearFSM() {
         symbols.clear();
         states.clear();
         transitions.clear();
+        transitionMap.clear();
         finalStates.clear();
         initialState = null;
+        invalidateTables();
+        if (journal != null) {
+            journal.recordClear();
+        }
     }
 }
@@ -0,0 +1,238 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Accepts the REPL command language over TCP. Every reply ends with an "OK" line, whether
+// the command succeeded or not: EXECUTE answers one YES/NO/ERROR line per input before it,
+// other commands whatever they printed.
+public class FSMServer implements Closeable {
+    public static final int MAX_COMMAND_LENGTH = 1 << 20;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final byte[] OK = "OK\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final FSM fsm;
+    private final CommandProcessor processor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private final PrintStream console;
+    private final ConnectionOutput connectionOutput;
+    private volatile BatchExecutor executor;
+
+    // Listens on the loopback interface only: commands such as LOG and LOAD-LAZY reach the
+    // file system and there is no authentication.
+    public FSMServer(FSM fsm, Logger logger, int port) throws IOException {
+        this(fsm, logger, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public FSMServer(FSM fsm, Logger logger, InetAddress bindAddress, int port) throws IOException {
+        this.fsm = fsm;
+        this.processor = new CommandProcessor(fsm, logger);
+        this.serverSocket = new ServerSocket(port, 0, bindAddress);
+        this.workers = newWorkerPool();
+
+        // Commands report through System.out; route whatever a connection's thread prints
+        // back to that connection and everything else to the server console.
+        this.console = System.out;
+        this.connectionOutput = new ConnectionOutput(console);
+        System.setOut(new PrintStream(connectionOutput, true, StandardCharsets.UTF_8));
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void serve() {
+        System.out.println("FSM server listening on " + serverSocket.getInetAddress().getHostAddress() + ":" + getPort());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                workers.execute(() -> handleConnection(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("Error: Could not accept connection");
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        workers.shutdownNow();
+        System.setOut(console);
+    }
+
+    private void handleConnection(Socket socket) {
+        try (socket;
+             InputStream in = socket.getInputStream();
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream(), READ_BUFFER_SIZE)) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            byte[] command = new byte[256];
+            int commandLength = 0;
+            boolean overflow = false;
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b != ';') {
+                        if (commandLength == MAX_COMMAND_LENGTH) {
+                            overflow = true;
+                        } else {
+                            if (commandLength == command.length) {
+                                command = Arrays.copyOf(command, Math.min(command.length * 2, MAX_COMMAND_LENGTH));
+                            }
+                            command[commandLength++] = b;
+                        }
+                        continue;
+                    }
+
+                    String text = new String(command, 0, commandLength, StandardCharsets.UTF_8).trim();
+                    commandLength = 0;
+                    if (overflow) {
+                        overflow = false;
+                        out.write(("Error: Command exceeds " + MAX_COMMAND_LENGTH + " bytes\n").getBytes(StandardCharsets.UTF_8));
+                        out.write(OK);
+                        continue;
+                    }
+                    if (text.equalsIgnoreCase("EXIT")) {
+                        out.flush();
+                        return;
+                    }
+                    handleCommand(text, out);
+                }
+
+                // Pipelined commands that are already buffered are answered together.
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            console.println("Error: Connection closed: " + e.getMessage());
+        }
+    }
+
+    private void handleCommand(String command, OutputStream out) throws IOException {
+        if (command.regionMatches(true, 0, "EXECUTE", 0, 7)) {
+            String inputPart = command.substring(7).trim();
+            if (inputPart.isEmpty()) {
+                out.write("Error: No input string provided.\n".getBytes(StandardCharsets.UTF_8));
+            } else {
+                for (String result : execute(Arrays.asList(inputPart.split("\\s+")))) {
+                    out.write(result.getBytes(StandardCharsets.UTF_8));
+                    out.write(NEW_LINE);
+                }
+            }
+            out.write(OK);
+            return;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        lock.writeLock().lock();
+        connectionOutput.redirect(output);
+        try {
+            processor.processCommand(command + ";");
+            executor = null;
+        } finally {
+            System.out.flush();
+            connectionOutput.redirect(null);
+            lock.writeLock().unlock();
+        }
+        output.writeTo(out);
+        out.write(OK);
+    }
+
+    // Runs against the same machine the REPL EXECUTE would: the LOAD-LAZY machine while one
+    // is loaded, otherwise the shared FSM through a cached batch executor.
+    private String[] execute(List<String> inputs) {
+        BatchExecutor current = executor;
+        if (current != null) {
+            return current.execute(inputs);
+        }
+        lock.readLock().lock();
+        try {
+            LazyFSM lazyFSM = processor.getLazyFSM();
+            if (lazyFSM != null) {
+                return executeLazy(lazyFSM, inputs);
+            }
+            current = new BatchExecutor(fsm);
+            executor = current;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return current.execute(inputs);
+    }
+
+    private static String[] executeLazy(LazyFSM lazyFSM, List<String> inputs) {
+        String[] results = new String[inputs.size()];
+        for (int i = 0; i < results.length; i++) {
+            try {
+                results[i] = lazyFSM.execute(inputs.get(i));
+            } catch (IOException e) {
+                results[i] = "ERROR: Could not read transitions: " + e.getMessage();
+            }
+        }
+        return results;
+    }
+
+    private static ExecutorService newWorkerPool() {
+        // Virtual threads need Java 21; older runtimes fall back to a cached platform pool.
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "fsm-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static class ConnectionOutput extends OutputStream {
+        private final OutputStream fallback;
+        private final ThreadLocal<OutputStream> target = new ThreadLocal<>();
+
+        ConnectionOutput(OutputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        void redirect(OutputStream out) {
+            if (out == null) {
+                target.remove();
+            } else {
+                target.set(out);
+            }
+        }
+
+        private OutputStream current() {
+            OutputStream out = target.get();
+            return out != null ? out : fallback;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FSMServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int pipelineDepth = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        FSM fsm = new FSM();
+        fsm.addSymbol("a");
+        fsm.addSymbol("b");
+        fsm.addState("q0", false);
+        fsm.addState("q1", true);
+        fsm.addTransition("a", "q0", "q1");
+        fsm.addTransition("b", "q1", "q0");
+        fsm.addTransition("a", "q1", "q1");
+        fsm.addTransition("b", "q0", "q0");
+
+        try (FSMServer server = new FSMServer(fsm, new Logger(), 0)) {
+            Thread acceptor = new Thread(server::serve);
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            for (int round = 0; round < 3; round++) {
+                AtomicLong answered = new AtomicLong();
+                List<Thread> clients = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int c = 0; c < connections; c++) {
+                    Thread client = new Thread(() -> answered.addAndGet(runClient(server.getPort(), requestsPerConnection, pipelineDepth)));
+                    clients.add(client);
+                    client.start();
+                }
+                for (Thread client : clients) {
+                    client.join();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Round %d: %d connections, pipeline depth %d: %.0f requests/s%n",
+                        round + 1, connections, pipelineDepth, answered.get() / seconds);
+            }
+        }
+    }
+
+    // Keeps pipelineDepth EXECUTE requests in flight and returns the number of answers read.
+    private static long runClient(int port, int requests, int pipelineDepth) {
+        byte[] request = "EXECUTE abba;".getBytes(StandardCharsets.UTF_8);
+        byte[] batch = new byte[request.length * pipelineDepth];
+        for (int i = 0; i < pipelineDepth; i++) {
+            System.arraycopy(request, 0, batch, i * request.length, request.length);
+        }
+
+        long answered = 0;
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+            for (int sent = 0; sent < requests; sent += pipelineDepth) {
+                out.write(batch);
+                out.flush();
+                // Each answer is the result line followed by the "OK" terminator.
+                for (int i = 0; i < pipelineDepth; i++) {
+                    if (in.readLine() == null || in.readLine() == null) {
+                        return answered;
+                    }
+                    answered++;
+                }
+            }
+            out.write("EXIT;".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Client error: " + e.getMessage());
+        }
+        return answered;
+    }
+}
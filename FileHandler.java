@@ -1,47 +1,60 @@
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class FileHandler {
+    private static final ExportBuffer EXPORT_BUFFER = new ExportBuffer(1 << 20);
+
     public static void saveToTextFile(FSM fsm, String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            writer.print("SYMBOLS");
+        synchronized (EXPORT_BUFFER) {
+            writeTextFile(fsm, filename);
+        }
+    }
+    private static void writeTextFile(FSM fsm, String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ExportBuffer out = EXPORT_BUFFER.to(channel);
+            out.put("SYMBOLS");
             for (String symbol : fsm.getSymbols()) {
-                writer.print(" " + symbol);
+                out.put(' ').put(symbol);
             }
-            writer.println(";");
+            out.put(';').newLine();
 
-            writer.print("STATES");
+            out.put("STATES");
             for (String state : fsm.getStates().keySet()) {
-                writer.print(" " + state);
+                out.put(' ').put(state);
             }
-            writer.println(";");
+            out.put(';').newLine();
 
             if (fsm.getInitialState() != null) {
-                writer.println("INITIAL-STATE " + fsm.getInitialState().getName() + ";");
+                out.put("INITIAL-STATE ").put(fsm.getInitialState().getName()).put(';').newLine();
             }
 
             if (!fsm.getFinalStates().isEmpty()) {
-                writer.print("FINAL-STATES");
+                out.put("FINAL-STATES");
                 for (State state : fsm.getFinalStates()) {
-                    writer.print(" " + state.getName());
+                    out.put(' ').put(state.getName());
                 }
-                writer.println(";");
+                out.put(';').newLine();
             }
 
             if (!fsm.getTransitions().isEmpty()) {
-                writer.print("TRANSITIONS");
+                out.put("TRANSITIONS");
                 boolean first = true;
                 for (Transition t : fsm.getTransitions()) {
                     if (!first) {
-                        writer.print(",");
+                        out.put(',');
                     } else {
                         first = false;
                     }
-                    writer.print(" " + t.getSymbol() + " " +
-                            t.getFromState().getName() + " " +
-                            t.getToState().getName());
+                    out.put(' ').put(t.getSymbol())
+                            .put(' ').put(t.getFromState().getName())
+                            .put(' ').put(t.getToState().getName());
                 }
-                writer.println(";");
+                out.put(';').newLine();
             }
+            out.flush();
 
             System.out.println("FSM saved to text file: " + filename);
         } catch (IOException e) {
@@ -69,6 +82,20 @@ public class FileHandler {
             return null;
         }
     }
+    public static LazyFSM loadLazyFromTextFile(String filename, int maxResidentStates) {
+        try {
+            LazyFSM fsm = new LazyFSM(filename, maxResidentStates);
+            System.out.println("FSM indexed from text file: " + filename);
+            return fsm;
+        } catch (IOException e) {
+            System.out.println("Error: Could not index file " + filename);
+            System.out.println(e.getMessage());
+            return null;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return null;
+        }
+    }
     public static FSM loadFromTextFile(String filename) {
         FSM fsm = new FSM();
         CommandProcessor processor = new CommandProcessor(fsm);
@@ -0,0 +1,305 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+public class Journal implements Closeable {
+    private static final byte SYMBOL = 1;
+    private static final byte STATE = 2;
+    private static final byte INITIAL_STATE = 3;
+    private static final byte FINAL_STATE = 4;
+    private static final byte TRANSITION = 5;
+    private static final byte CLEAR = 6;
+
+    private static final int CHECKPOINT_RECORDS = 100_000;
+
+    private final FSM fsm;
+    private final Path checkpointFile;
+    private final FileChannel channel;
+    private final OutputStream channelOut;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final CRC32 crc = new CRC32();
+    private long appendedRecords;
+    private long durableRecords;
+    private boolean committing;
+    private IOException failure;
+    private int recordsSinceCheckpoint;
+
+    private Journal(FSM fsm, Path checkpointFile, Path journalFile, long validLength) throws IOException {
+        this.fsm = fsm;
+        this.checkpointFile = checkpointFile;
+        this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        this.channelOut = Channels.newOutputStream(channel);
+    }
+
+    // Loads <baseName>.fs, replays the intact tail of <baseName>.fsj on top of it
+    // and returns the machine with a journal attached for further edits. A checkpoint that
+    // exists but cannot be read fails recovery: replaying the tail onto an empty machine and
+    // checkpointing it would overwrite the last good copy.
+    public static FSM recover(String baseName) throws IOException {
+        Path checkpointFile = Paths.get(baseName + ".fs");
+        Path journalFile = Paths.get(baseName + ".fsj");
+
+        FSM fsm = Files.exists(checkpointFile) ? readCheckpoint(checkpointFile) : new FSM();
+
+        long validLength = 0;
+        int replayed = 0;
+        if (Files.exists(journalFile)) {
+            long journalSize = Files.size(journalFile);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+                CRC32 checksum = new CRC32();
+                while (true) {
+                    if (journalSize - validLength < 8) {
+                        break;
+                    }
+                    int length = in.readInt();
+                    int expected = in.readInt();
+                    if (length < 0 || length > journalSize - validLength - 8) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    checksum.reset();
+                    checksum.update(payload);
+                    if ((int) checksum.getValue() != expected) {
+                        break;
+                    }
+                    replay(fsm, new DataInputStream(new ByteArrayInputStream(payload)));
+                    validLength += 8 + payload.length;
+                    replayed++;
+                }
+            }
+            System.out.println("Replayed " + replayed + " journal records from " + journalFile);
+        }
+
+        Journal journal = new Journal(fsm, checkpointFile, journalFile, validLength);
+        journal.recordsSinceCheckpoint = replayed;
+        fsm.setJournal(journal);
+        return fsm;
+    }
+
+    private static FSM readCheckpoint(Path checkpointFile) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            return (FSM) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Checkpoint " + checkpointFile + " does not hold an FSM", e);
+        } catch (IOException e) {
+            throw new IOException("Could not read checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private static void replay(FSM fsm, DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case SYMBOL:
+                fsm.addSymbol(in.readUTF());
+                break;
+            case STATE:
+                String name = in.readUTF();
+                fsm.addState(name, in.readBoolean());
+                break;
+            case INITIAL_STATE:
+                fsm.setInitialState(in.readUTF());
+                break;
+            case FINAL_STATE:
+                fsm.addFinalState(in.readUTF());
+                break;
+            case TRANSITION:
+                String symbol = in.readUTF();
+                String from = in.readUTF();
+                fsm.addTransition(symbol, from, in.readUTF());
+                break;
+            case CLEAR:
+                fsm.clearFSM();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + op);
+        }
+    }
+
+    // Each record method returns once the record is on disk. Callers that arrive while another
+    // caller's fsync is running wait and are written together by the next fsync.
+    public void recordSymbol(String symbol) {
+        awaitDurable(append(SYMBOL, symbol));
+    }
+
+    public void recordState(String name, boolean isFinal) {
+        awaitDurable(appendState(name, isFinal));
+    }
+
+    public void recordInitialState(String name) {
+        awaitDurable(append(INITIAL_STATE, name));
+    }
+
+    public void recordFinalState(String name) {
+        awaitDurable(append(FINAL_STATE, name));
+    }
+
+    public void recordTransition(String symbol, String from, String to) {
+        awaitDurable(append(TRANSITION, symbol, from, to));
+    }
+
+    public void recordClear() {
+        awaitDurable(append(CLEAR));
+    }
+
+    public void commit() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = appendedRecords;
+        }
+        commitThrough(sequence);
+    }
+
+    // Group commit: the first caller whose record is not yet durable writes and forces every
+    // record framed so far; the monitor is released during the fsync so others can append.
+    private void commitThrough(long sequence) throws IOException {
+        byte[] batch;
+        long batchEnd;
+        synchronized (this) {
+            while (durableRecords < sequence && committing && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for journal commit");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (durableRecords >= sequence) {
+                return;
+            }
+            batch = pending.toByteArray();
+            pending.reset();
+            batchEnd = appendedRecords;
+            committing = true;
+        }
+
+        IOException error = null;
+        try {
+            channelOut.write(batch);
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            committing = false;
+            if (error == null) {
+                durableRecords = batchEnd;
+            } else {
+                // The batch may be half written; later records would not replay past it.
+                failure = error;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Writes the whole machine to <baseName>.fs and empties the journal.
+    // The journal is only truncated once the new checkpoint and its directory entry are
+    // durable, so a crash at any point leaves either the old or the new checkpoint with a
+    // journal that replays on top of it.
+    public synchronized void checkpoint() throws IOException {
+        commit();
+        Path tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Channels.newOutputStream(tempChannel)));
+            oos.writeObject(fsm);
+            oos.flush();
+            tempChannel.force(true);
+        }
+        Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(checkpointFile.toAbsolutePath().getParent());
+        channel.truncate(0);
+        channel.force(true);
+        recordsSinceCheckpoint = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        commit();
+        channel.close();
+    }
+
+    // Frames a record into the pending batch and returns its sequence number, or -1 if it
+    // could not be written.
+    private synchronized long append(byte op, String... values) {
+        try {
+            recordOut.writeByte(op);
+            for (String value : values) {
+                recordOut.writeUTF(value);
+            }
+            return frame();
+        } catch (IOException e) {
+            record.reset();
+            reportWriteError(e);
+            return -1;
+        }
+    }
+
+    private synchronized long appendState(String name, boolean isFinal) {
+        try {
+            recordOut.writeByte(STATE);
+            recordOut.writeUTF(name);
+            recordOut.writeBoolean(isFinal);
+            return frame();
+        } catch (IOException e) {
+            record.reset();
+            reportWriteError(e);
+            return -1;
+        }
+    }
+
+    private long frame() throws IOException {
+        byte[] payload = record.toByteArray();
+        record.reset();
+        crc.reset();
+        crc.update(payload);
+        pendingOut.writeInt(payload.length);
+        pendingOut.writeInt((int) crc.getValue());
+        pendingOut.write(payload);
+
+        long sequence = ++appendedRecords;
+        recordsSinceCheckpoint++;
+        if (recordsSinceCheckpoint >= CHECKPOINT_RECORDS) {
+            checkpoint();
+        }
+        return sequence;
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (AccessDeniedException e) {
+            // Some platforms (e.g. Windows) cannot open a directory for fsync; the rename
+            // is as durable as the file system makes it there.
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        if (sequence < 0) {
+            return;
+        }
+        try {
+            commitThrough(sequence);
+        } catch (IOException e) {
+            reportWriteError(e);
+        }
+    }
+
+    private void reportWriteError(IOException e) {
+        System.out.println("Error: Could not write journal");
+        System.out.println(e.getMessage());
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.*;
+
+public class LanguageComparator {
+    private final TransitionTable left;
+    private final TransitionTable right;
+    private final int leftInitial;
+    private final int rightInitial;
+
+    public LanguageComparator(FSM leftFSM, FSM rightFSM) {
+        Set<String> alphabet = new HashSet<>(leftFSM.getSymbols());
+        alphabet.addAll(rightFSM.getSymbols());
+        left = tableOf(leftFSM, alphabet);
+        right = tableOf(rightFSM, alphabet);
+        leftInitial = left.getInitialState() >= 0 ? left.getInitialState() : left.getSinkState();
+        rightInitial = right.getInitialState() >= 0 ? right.getInitialState() : right.getSinkState();
+    }
+
+    private static TransitionTable tableOf(FSM fsm, Set<String> alphabet) {
+        return fsm.getSymbols().equals(alphabet) ? fsm.getTransitionTable() : TransitionTable.of(fsm, alphabet);
+    }
+
+    // Tells which side of a counterexample is the accepting one.
+    public boolean acceptedByLeft(String input) {
+        int state = leftInitial;
+        for (int i = 0; i < input.length() && state != left.getSinkState(); i++) {
+            int symbol = left.symbolIndex(input.charAt(i));
+            if (symbol < 0) {
+                return false;
+            }
+            state = left.next(state, symbol);
+        }
+        return left.isAccepting(state);
+    }
+
+    // Returns a shortest string accepted by exactly one machine, or null if they are equivalent.
+    public String equivalenceCounterexample() {
+        if (isEquivalent()) {
+            return null;
+        }
+        return shortestWitness(false);
+    }
+
+    // Returns a shortest string accepted by the left machine but not the right, or null if
+    // the left language is included in the right one.
+    public String inclusionCounterexample() {
+        return shortestWitness(true);
+    }
+
+    // Hopcroft-Karp: merge the classes of paired states and stop at the first pair whose
+    // acceptance differs. Each union removes a class, so at most n pairs are ever queued.
+    private boolean isEquivalent() {
+        int leftCount = left.getStateCount();
+        int[] parent = new int[leftCount + right.getStateCount()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        parent[find(parent, leftCount + rightInitial)] = find(parent, leftInitial);
+        queue[tail++] = leftInitial;
+        queue[tail++] = rightInitial;
+
+        while (head < tail) {
+            int p = queue[head++];
+            int q = queue[head++];
+            if (left.isAccepting(p) != right.isAccepting(q)) {
+                return false;
+            }
+
+            for (int symbol = 0; symbol < left.getSymbolCount(); symbol++) {
+                int nextP = left.next(p, symbol);
+                int nextQ = right.next(q, symbol);
+                int rootP = find(parent, nextP);
+                int rootQ = find(parent, leftCount + nextQ);
+                if (rootP != rootQ) {
+                    parent[rootQ] = rootP;
+                    if (tail + 2 > queue.length) {
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                    }
+                    queue[tail++] = nextP;
+                    queue[tail++] = nextQ;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    // Breadth-first search over the product machine, so the first witness found is shortest.
+    // Visited pairs live in primitive arrays indexed by visit order: the pair itself, the
+    // index of the pair it was reached from and the symbol taken.
+    private String shortestWitness(boolean inclusionOnly) {
+        long rightCount = right.getStateCount();
+        PairIndex visited = new PairIndex();
+        long[] pairs = new long[1024];
+        int[] parents = new int[pairs.length];
+        int[] symbols = new int[pairs.length];
+        int count = 0;
+        int head = 0;
+
+        pairs[count] = leftInitial * rightCount + rightInitial;
+        parents[count] = -1;
+        visited.add(pairs[count]);
+        count++;
+
+        while (head < count) {
+            long pair = pairs[head];
+            int p = (int) (pair / rightCount);
+            int q = (int) (pair % rightCount);
+            boolean leftAccepts = left.isAccepting(p);
+            boolean rightAccepts = right.isAccepting(q);
+            if (inclusionOnly ? leftAccepts && !rightAccepts : leftAccepts != rightAccepts) {
+                return buildWitness(head, parents, symbols);
+            }
+            if (p != left.getSinkState() || q != right.getSinkState()) {
+                for (int symbol = 0; symbol < left.getSymbolCount(); symbol++) {
+                    long next = left.next(p, symbol) * rightCount + right.next(q, symbol);
+                    if (visited.add(next)) {
+                        if (count == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, count * 2);
+                            parents = Arrays.copyOf(parents, count * 2);
+                            symbols = Arrays.copyOf(symbols, count * 2);
+                        }
+                        pairs[count] = next;
+                        parents[count] = head;
+                        symbols[count] = symbol;
+                        count++;
+                    }
+                }
+            }
+            head++;
+        }
+        return null;
+    }
+
+    private String buildWitness(int index, int[] parents, int[] symbols) {
+        StringBuilder witness = new StringBuilder();
+        while (parents[index] != -1) {
+            witness.append(left.getSymbol(symbols[index]));
+            index = parents[index];
+        }
+        return witness.reverse().toString();
+    }
+
+    // Open-addressed set of non-negative pair keys.
+    private static class PairIndex {
+        private long[] keys = new long[1024];
+        private int size;
+
+        PairIndex() {
+            Arrays.fill(keys, -1L);
+        }
+
+        boolean add(long key) {
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) (mix(key) & mask);
+            while (keys[slot] != -1L) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            size++;
+            return true;
+        }
+
+        private void resize() {
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            Arrays.fill(keys, -1L);
+            int mask = keys.length - 1;
+            for (long key : old) {
+                if (key != -1L) {
+                    int slot = (int) (mix(key) & mask);
+                    while (keys[slot] != -1L) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return key ^ (key >>> 32);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+import java.io.*;
+import java.util.*;
+
+public class LazyFSM implements Closeable {
+    private final RandomAccessFile file;
+    private final Set<String> symbols = new HashSet<>();
+    private final boolean[] declaredSymbols = new boolean[128];
+    private final Set<String> states = new LinkedHashSet<>();
+    private final Set<String> finalStates = new HashSet<>();
+    private final Map<String, OffsetList> index = new HashMap<>();
+    private final Map<String, Map<Character, String>> resident;
+    private String initialState;
+    private byte[] readBuffer = new byte[256];
+    private final StringBuilder definition = new StringBuilder();
+
+    public LazyFSM(String filename, int maxResidentStates) throws IOException {
+        if (maxResidentStates <= 0) {
+            throw new IllegalArgumentException("maxResidentStates must be positive: " + maxResidentStates);
+        }
+        buildIndex(filename);
+        for (String symbol : symbols) {
+            declaredSymbols[symbol.charAt(0)] = true;
+        }
+        this.file = new RandomAccessFile(filename, "r");
+        this.resident = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Character, String>> eldest) {
+                return size() > maxResidentStates;
+            }
+        };
+    }
+
+    public Set<String> getSymbols() {
+        return symbols;
+    }
+
+    public Set<String> getStates() {
+        return states;
+    }
+
+    public Set<String> getFinalStates() {
+        return finalStates;
+    }
+
+    public String getInitialState() {
+        return initialState;
+    }
+
+    public int getResidentStateCount() {
+        return resident.size();
+    }
+
+    public synchronized String execute(String input) throws IOException {
+        if (initialState == null) {
+            return "ERROR: Initial state not set";
+        }
+
+        String currentState = initialState;
+        for (int i = 0; i < input.length(); i++) {
+            char symbol = Character.toLowerCase(input.charAt(i));
+            if (symbol >= declaredSymbols.length || !declaredSymbols[symbol]) {
+                return "ERROR: Invalid symbol '" + symbol + "'";
+            }
+
+            String nextState = transitionsOf(currentState).get(symbol);
+            if (nextState == null) {
+                return "NO";
+            }
+            currentState = nextState;
+        }
+
+        return finalStates.contains(currentState) ? "YES" : "NO";
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private Map<Character, String> transitionsOf(String state) throws IOException {
+        Map<Character, String> transitions = resident.get(state);
+        if (transitions != null) {
+            return transitions;
+        }
+
+        transitions = new HashMap<>();
+        OffsetList offsets = index.get(state);
+        if (offsets != null) {
+            for (int i = 0; i < offsets.size; i++) {
+                String[] parts = readTransition(offsets.offsets[i]);
+                transitions.put(parts[0].charAt(0), parts[1]);
+            }
+        }
+        resident.put(state, transitions);
+        return transitions;
+    }
+
+    // Returns {symbol, nextState} for the transition definition starting at offset. Comment
+    // lines inside the definition are skipped, as the eager loader drops them.
+    private String[] readTransition(long offset) throws IOException {
+        int length = 0;
+        int end;
+        while (true) {
+            file.seek(offset + length);
+            int read = file.read(readBuffer, length, readBuffer.length - length);
+            if (read <= 0) {
+                end = length;
+                break;
+            }
+            length += read;
+            end = definitionEnd(length);
+            if (end >= 0) {
+                break;
+            }
+            readBuffer = Arrays.copyOf(readBuffer, readBuffer.length * 2);
+        }
+
+        definition.setLength(0);
+        boolean lineStart = false;
+        for (int i = 0; i < end; i++) {
+            if (lineStart && readBuffer[i] == ';') {
+                while (i < end && readBuffer[i] != '\n') {
+                    i++;
+                }
+            }
+            if (i < end) {
+                definition.append((char) (readBuffer[i] & 0xff));
+                lineStart = updateLineStart(lineStart, readBuffer[i]);
+            }
+        }
+        String[] parts = definition.toString().trim().split("\\s+");
+        String symbol = parts[0].toLowerCase();
+        if (symbol.length() != 1 || parts.length < 3) {
+            throw new IOException("Transition at offset " + offset + " no longer matches the index");
+        }
+        String nextState = String.join("", Arrays.copyOfRange(parts, 2, parts.length)).toLowerCase();
+        return new String[] {symbol, nextState};
+    }
+
+    // Position of the ',' or ';' that ends the definition in the first length bytes, or -1.
+    // A ';' that starts a line is a comment, not a terminator.
+    private int definitionEnd(int length) {
+        boolean lineStart = false;
+        for (int i = 0; i < length; i++) {
+            byte b = readBuffer[i];
+            if (lineStart && b == ';') {
+                while (i < length && readBuffer[i] != '\n') {
+                    i++;
+                }
+                if (i == length) {
+                    return -1;
+                }
+            } else if (b == ',' || b == ';') {
+                return i;
+            }
+            lineStart = updateLineStart(lineStart, readBuffer[i]);
+        }
+        return -1;
+    }
+
+    private static boolean updateLineStart(boolean lineStart, int b) {
+        return b == '\n' || (lineStart && b <= ' ');
+    }
+
+    // Follows FileHandler.loadFromTextFile and CommandProcessor: blank lines and lines starting
+    // with ';' are skipped, a command runs up to the first ';' and the rest of that line is
+    // dropped, and a command without a terminating ';' at the end of the file is ignored.
+    // Only the definition commands are applied; EXECUTE, LOAD and other commands that the
+    // eager loader would run are skipped.
+    private void buildIndex(String filename) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filename), 1 << 16)) {
+            IndexBuilder builder = new IndexBuilder();
+            boolean lineStart = true;
+            long offset = 0;
+            int b;
+
+            while ((b = in.read()) != -1) {
+                long position = offset++;
+                if (b == ';') {
+                    if (!lineStart) {
+                        builder.endCommand();
+                    }
+                    while (b != '\n' && (b = in.read()) != -1) {
+                        offset++;
+                    }
+                    lineStart = true;
+                    continue;
+                }
+                lineStart = updateLineStart(lineStart, b);
+                builder.accept(b, position);
+            }
+        }
+    }
+
+    // Parses one command at a time. The keyword is matched by prefix like CommandProcessor;
+    // arguments of header commands are buffered and split the same way, while TRANSITIONS
+    // definitions are streamed and only their offsets are kept.
+    private class IndexBuilder {
+        private final StringBuilder head = new StringBuilder();
+        private final StringBuilder arguments = new StringBuilder();
+        private final StringBuilder token = new StringBuilder();
+        private final StringBuilder toState = new StringBuilder();
+        private final List<String> pendingStates = new ArrayList<>();
+        private final OffsetList pendingOffsets = new OffsetList();
+        private String keyword;
+        private long headStart;
+        private long tokenStart;
+        private long definitionStart;
+        private int definitionTokens;
+        private String symbol;
+        private String fromState;
+
+        void accept(int b, long position) {
+            if (keyword == null) {
+                if (!isSpace(b)) {
+                    if (head.length() == 0) {
+                        if (b <= ' ') {
+                            return;
+                        }
+                        headStart = position;
+                    }
+                    head.append((char) b);
+                    return;
+                }
+                if (head.length() == 0) {
+                    return;
+                }
+                startCommand();
+            }
+            feed(b, position);
+        }
+
+        void endCommand() {
+            if (keyword == null && head.length() > 0) {
+                startCommand();
+            }
+            if (keyword != null) {
+                if (keyword.equals("TRANSITIONS")) {
+                    endDefinition();
+                    for (int i = 0; i < pendingStates.size(); i++) {
+                        index.computeIfAbsent(pendingStates.get(i), k -> new OffsetList()).add(pendingOffsets.offsets[i]);
+                    }
+                } else {
+                    applyHeaderCommand(keyword, arguments.toString().trim());
+                }
+            }
+            head.setLength(0);
+            arguments.setLength(0);
+            pendingStates.clear();
+            pendingOffsets.size = 0;
+            keyword = null;
+        }
+
+        private void startCommand() {
+            String upper = head.toString().toUpperCase();
+            keyword = "";
+            for (String candidate : new String[] {"SYMBOLS", "STATES", "INITIAL-STATE", "FINAL-STATES", "TRANSITIONS"}) {
+                if (upper.startsWith(candidate)) {
+                    keyword = candidate;
+                    break;
+                }
+            }
+            if (keyword.isEmpty() && upper.equals("CLEAR")) {
+                keyword = "CLEAR";
+            }
+            for (int i = keyword.length(); i < head.length(); i++) {
+                feed(head.charAt(i), headStart + i);
+            }
+        }
+
+        private void feed(int b, long position) {
+            if (keyword.equals("TRANSITIONS")) {
+                feedTransition(b, position);
+            } else if (!keyword.isEmpty()) {
+                arguments.append((char) b);
+            }
+        }
+
+        // Mirrors CommandProcessor: definitions are separated by ',' and their parts by
+        // whitespace; the next state is every part after the second one joined together.
+        private void feedTransition(int b, long position) {
+            if (!isSpace(b) && b != ',') {
+                if (token.length() == 0) {
+                    tokenStart = position;
+                }
+                token.append((char) b);
+                return;
+            }
+            endToken();
+            if (b == ',') {
+                endDefinition();
+            }
+        }
+
+        private void endToken() {
+            if (token.length() == 0) {
+                return;
+            }
+            String value = token.toString().toLowerCase();
+            token.setLength(0);
+            if (definitionTokens == 0) {
+                definitionStart = tokenStart;
+                symbol = value;
+            } else if (definitionTokens == 1) {
+                fromState = value;
+            } else {
+                toState.append(value);
+            }
+            definitionTokens++;
+        }
+
+        private void endDefinition() {
+            endToken();
+            if (definitionTokens >= 3 && isValidTransition(symbol, fromState, toState.toString())) {
+                pendingStates.add(fromState);
+                pendingOffsets.add(definitionStart);
+            }
+            definitionTokens = 0;
+            toState.setLength(0);
+        }
+    }
+
+    // Matches the \\s class that CommandProcessor splits on.
+    private static boolean isSpace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    // Mirrors FSM.addTransition: the symbol and both states must already be declared.
+    private boolean isValidTransition(String symbol, String from, String to) {
+        return symbols.contains(symbol) && states.contains(from) && states.contains(to);
+    }
+
+    // Mirrors the CommandProcessor handlers and the checks in FSM.addSymbol, addState,
+    // setInitialState and addFinalState.
+    private void applyHeaderCommand(String keyword, String arguments) {
+        switch (keyword) {
+            case "SYMBOLS":
+                if (arguments.isEmpty()) {
+                    break;
+                }
+                for (String symbol : arguments.split("\\s+")) {
+                    if (symbol.length() == 1 && symbol.toLowerCase().matches("[a-z0-9]")) {
+                        symbols.add(symbol.toLowerCase());
+                    }
+                }
+                break;
+            case "STATES":
+                if (arguments.isEmpty()) {
+                    break;
+                }
+                for (String state : arguments.split("\\s+")) {
+                    addState(state.toLowerCase());
+                }
+                break;
+            case "INITIAL-STATE":
+                // The whole argument is one state name, so "q0 q1" is rejected.
+                if (addState(arguments.toLowerCase())) {
+                    initialState = arguments.toLowerCase();
+                }
+                break;
+            case "FINAL-STATES":
+                if (arguments.isEmpty()) {
+                    break;
+                }
+                for (String state : arguments.split("\\s+")) {
+                    if (addState(state.toLowerCase())) {
+                        finalStates.add(state.toLowerCase());
+                    }
+                }
+                break;
+            case "CLEAR":
+                if (arguments.isEmpty()) {
+                    symbols.clear();
+                    states.clear();
+                    finalStates.clear();
+                    index.clear();
+                    initialState = null;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean addState(String name) {
+        if (!name.matches("[a-z0-9]+")) {
+            return false;
+        }
+        states.add(name);
+        if (initialState == null) {
+            initialState = name;
+        }
+        return true;
+    }
+
+    private static class OffsetList {
+        private long[] offsets = new long[2];
+        private int size;
+
+        void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.net.InetAddress;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Scanner;
@@ -12,7 +14,33 @@ public class Main {
         FSM fsm = new FSM();
         CommandProcessor processor = new CommandProcessor(fsm);
 
-        if (args.length > 0) {
+        if (args.length > 1 && args[0].equals("--serve")) {
+            // Loopback only unless a bind address is given: --serve <port> [<bind address>]
+            try (FSMServer server = args.length > 2
+                    ? new FSMServer(fsm, new Logger(), InetAddress.getByName(args[2]), Integer.parseInt(args[1]))
+                    : new FSMServer(fsm, new Logger(), Integer.parseInt(args[1]))) {
+                server.serve();
+            } catch (IOException | NumberFormatException e) {
+                System.out.println("Error starting server: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--lazy")) {
+            try {
+                processor.loadLazy(args[1], args.length > 2 ? Integer.parseInt(args[2]) : CommandProcessor.DEFAULT_MAX_RESIDENT_STATES);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: Resident state limit must be a number. Found: " + args[2]);
+            }
+        } else if (args.length > 1 && args[0].equals("--journal")) {
+            try {
+                fsm = Journal.recover(args[1]);
+                processor = new CommandProcessor(fsm);
+            } catch (IOException e) {
+                System.out.println("Error recovering journal: " + e.getMessage());
+                return;
+            }
+        } else if (args.length > 0) {
             try {
                 String filename = args[0];
                 if (filename.endsWith(".fs")) {
@@ -58,6 +86,14 @@ public class Main {
         }
 
         scanner.close();
+
+        if (fsm.getJournal() != null) {
+            try {
+                fsm.getJournal().close();
+            } catch (IOException e) {
+                System.out.println("Error closing journal: " + e.getMessage());
+            }
+        }
     }
 
 }
@@ -0,0 +1,110 @@
+import java.util.*;
+
+public class TransitionTable {
+    private final String[] stateNames;
+    private final String[] displayNames;
+    private final char[] alphabet;
+    private final int[] symbolIndex = new int[128];
+    private final int[] next;
+    private final boolean[] accepting;
+    private final int initialState;
+    private final int sinkState;
+
+    private TransitionTable(FSM fsm, Collection<String> symbols) {
+        List<String> sortedSymbols = new ArrayList<>(symbols);
+        Collections.sort(sortedSymbols);
+        alphabet = new char[sortedSymbols.size()];
+        Arrays.fill(symbolIndex, -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            char ch = sortedSymbols.get(i).charAt(0);
+            alphabet[i] = ch;
+            symbolIndex[Character.toLowerCase(ch)] = i;
+            symbolIndex[Character.toUpperCase(ch)] = i;
+        }
+
+        Map<String, Integer> indexOf = new HashMap<>();
+        stateNames = new String[fsm.getStates().size()];
+        displayNames = new String[stateNames.length];
+        int index = 0;
+        for (String name : fsm.getStates().keySet()) {
+            stateNames[index] = name;
+            displayNames[index] = name.toUpperCase();
+            indexOf.put(name, index++);
+        }
+
+        sinkState = stateNames.length;
+        next = new int[(sinkState + 1) * alphabet.length];
+        Arrays.fill(next, sinkState);
+        for (Transition t : fsm.getTransitions()) {
+            int symbol = symbolIndex[t.getSymbol().charAt(0)];
+            if (symbol < 0) {
+                continue;
+            }
+            int from = indexOf.get(t.getFromState().getName());
+            next[from * alphabet.length + symbol] = indexOf.get(t.getToState().getName());
+        }
+
+        accepting = new boolean[sinkState + 1];
+        for (State state : fsm.getFinalStates()) {
+            accepting[indexOf.get(state.getName())] = true;
+        }
+
+        initialState = fsm.getInitialState() != null ? indexOf.get(fsm.getInitialState().getName()) : -1;
+    }
+
+    public static TransitionTable of(FSM fsm) {
+        return new TransitionTable(fsm, fsm.getSymbols());
+    }
+
+    public static TransitionTable of(FSM fsm, Collection<String> symbols) {
+        return new TransitionTable(fsm, symbols);
+    }
+
+    public int getStateCount() {
+        return sinkState + 1;
+    }
+
+    public int getSymbolCount() {
+        return alphabet.length;
+    }
+
+    public char getSymbol(int symbol) {
+        return alphabet[symbol];
+    }
+
+    public int symbolIndex(char ch) {
+        return ch < symbolIndex.length ? symbolIndex[ch] : -1;
+    }
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    public int getSinkState() {
+        return sinkState;
+    }
+
+    public String getStateName(int state) {
+        return state == sinkState ? null : stateNames[state];
+    }
+
+    public String getDisplayName(int state) {
+        return state == sinkState ? null : displayNames[state];
+    }
+
+    public int next(int state, int symbol) {
+        return next[state * alphabet.length + symbol];
+    }
+
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    int[] nextTable() {
+        return next;
+    }
+
+    boolean[] acceptingTable() {
+        return accepting;
+    }
+}
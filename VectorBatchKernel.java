@@ -0,0 +1,100 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.List;
+
+// Requires --add-modules jdk.incubator.vector at compile and run time; BatchExecutor
+// only loads this class when that module is present.
+class VectorBatchKernel implements BatchExecutor.Kernel {
+    // Capped at 256 bits: C2 in JDK 17.0.9 miscompiles the 512-bit AVX-512 gather, which then
+    // reads through an index vector other than the one that was bounds-checked and crashes
+    // the VM. 17.0.16 does not, and 256-bit gathers are unaffected on both.
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED.vectorBitSize() > 256
+            ? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void execute(TransitionTable table, List<String> inputs, String[] results) {
+        int[] next = table.nextTable();
+        boolean[] accepting = table.acceptingTable();
+        int symbolCount = table.getSymbolCount();
+        int sink = table.getSinkState();
+        int lanes = SPECIES.length();
+
+        int[] current = new int[lanes];
+        int[] symbols = new int[lanes];
+        int[] index = new int[lanes];
+        boolean[] active = new boolean[lanes];
+        int[] end = new int[lanes];
+        String[] lane = new String[lanes];
+
+        for (int base = 0; base < results.length; base += lanes) {
+            int count = Math.min(lanes, results.length - base);
+            int maxLength = 0;
+            for (int i = 0; i < lanes; i++) {
+                if (i < count) {
+                    lane[i] = inputs.get(base + i);
+                    current[i] = table.getInitialState();
+                    end[i] = lane[i].length();
+                    maxLength = Math.max(maxLength, end[i]);
+                } else {
+                    lane[i] = null;
+                    current[i] = sink;
+                    end[i] = 0;
+                }
+            }
+
+            IntVector state = IntVector.fromArray(SPECIES, current, 0);
+            for (int step = 0; step < maxLength; step++) {
+                int activeLanes = 0;
+                for (int i = 0; i < lanes; i++) {
+                    active[i] = false;
+                    symbols[i] = 0;
+                    if (i >= count || step >= end[i]) {
+                        continue;
+                    }
+                    char ch = lane[i].charAt(step);
+                    int symbol = table.symbolIndex(ch);
+                    if (symbol < 0) {
+                        results[base + i] = BatchExecutor.invalidSymbol(ch);
+                        end[i] = step;
+                        continue;
+                    }
+                    symbols[i] = symbol;
+                    active[i] = true;
+                    activeLanes++;
+                }
+                // Every lane has finished; this also covers a machine without symbols,
+                // whose table is empty and must not be gathered from.
+                if (activeLanes == 0) {
+                    break;
+                }
+
+                // One gather fetches the next state of every lane from the table; inactive lanes
+                // read a valid cell of their own row and keep their state through the blend.
+                // The unmasked gather is used because the masked form is not intrinsified on
+                // every platform and then allocates per step.
+                VectorMask<Integer> mask = VectorMask.fromArray(SPECIES, active, 0);
+                state.mul(symbolCount).add(IntVector.fromArray(SPECIES, symbols, 0)).intoArray(index, 0);
+                state = state.blend(IntVector.fromArray(SPECIES, next, 0, index, 0), mask);
+
+                VectorMask<Integer> dead = state.compare(VectorOperators.EQ, sink).and(mask);
+                if (dead.anyTrue()) {
+                    for (int i = 0; i < count; i++) {
+                        if (dead.laneIsSet(i)) {
+                            end[i] = step;
+                        }
+                    }
+                }
+            }
+
+            state.intoArray(current, 0);
+            for (int i = 0; i < count; i++) {
+                if (results[base + i] == null) {
+                    results[base + i] = accepting[current[i]] ? "YES" : "NO";
+                }
+            }
+        }
+    }
+}